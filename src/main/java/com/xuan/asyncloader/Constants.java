@@ -8,5 +8,9 @@ package com.xuan.asyncloader;
 public class Constants {
     public static final String ASYNC_INIT = "asyncInit";
     public static final int DEFAULT_POOL_SIZE = 9;
+    /**
+     * web.xml里的context-param，为true时并行解析contextConfigLocation里的配置文件
+     */
+    public static final String PARALLEL_LOAD_CONFIG = "parallelLoadConfig";
 
 }
@@ -7,10 +7,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.ResourceEntityResolver;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.web.context.support.XmlWebApplicationContext;
 
+import java.io.IOException;
+
 /**
  * 异步加载容器
  * <p>
@@ -22,6 +26,15 @@ public class AsyncXmlWebApplicationContext extends XmlWebApplicationContext {
 
     private AsyncBeanFactory asyncBeanFactory;
 
+    /**
+     * 是否并行解析配置文件，也可以通过web.xml的context-param开启
+     */
+    private boolean parallelLoadConfig = false;
+
+    public void setParallelLoadConfig(boolean parallelLoadConfig) {
+        this.parallelLoadConfig = parallelLoadConfig;
+    }
+
     @Override
     protected DefaultListableBeanFactory createBeanFactory() {
         log.info("CreateBeanFactory in Threadid:\t" + Thread.currentThread().getId() + Thread.currentThread().getName());
@@ -43,6 +56,34 @@ public class AsyncXmlWebApplicationContext extends XmlWebApplicationContext {
         log.warn("TotalInitTime:" + (System.currentTimeMillis() - initStartTime));
     }
 
+    @Override
+    protected void loadBeanDefinitions(DefaultListableBeanFactory beanFactory) throws BeansException, IOException {
+        if (!isParallelLoadConfig()) {
+            super.loadBeanDefinitions(beanFactory);
+            return;
+        }
+        //和XmlWebApplicationContext一样配置reader，只是换成并行预加载的实现
+        XmlBeanDefinitionReader beanDefinitionReader =
+                new ParallelXmlBeanDefinitionReader(beanFactory, Runtime.getRuntime().availableProcessors());
+        beanDefinitionReader.setEnvironment(getEnvironment());
+        beanDefinitionReader.setResourceLoader(this);
+        beanDefinitionReader.setEntityResolver(new ResourceEntityResolver(this));
+        initBeanDefinitionReader(beanDefinitionReader);
+
+        String[] configLocations = getConfigLocations();
+        if (configLocations != null) {
+            beanDefinitionReader.loadBeanDefinitions(configLocations);
+        }
+    }
+
+    protected boolean isParallelLoadConfig() {
+        if (parallelLoadConfig) {
+            return true;
+        }
+        return getServletContext() != null &&
+                "true".equals(getServletContext().getInitParameter(Constants.PARALLEL_LOAD_CONFIG));
+    }
+
     @Override
     public void publishEvent(ApplicationEvent event) {
         if (event instanceof ContextRefreshedEvent) {
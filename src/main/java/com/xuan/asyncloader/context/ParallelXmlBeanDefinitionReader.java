@@ -0,0 +1,335 @@
+package com.xuan.asyncloader.context;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.parsing.EmptyReaderEventListener;
+import org.springframework.beans.factory.parsing.FailFastProblemReporter;
+import org.springframework.beans.factory.parsing.NullSourceExtractor;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.SimpleBeanDefinitionRegistry;
+import org.springframework.beans.factory.xml.BeanDefinitionParserDelegate;
+import org.springframework.beans.factory.xml.DefaultBeanDefinitionDocumentReader;
+import org.springframework.beans.factory.xml.NamespaceHandler;
+import org.springframework.beans.factory.xml.NamespaceHandlerResolver;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.beans.factory.xml.XmlReaderContext;
+import org.springframework.context.config.ContextNamespaceHandler;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.util.xml.XmlValidationModeDetector;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行预加载配置文件的XmlBeanDefinitionReader
+ * <p>
+ * 用线程池并行解析所有配置文件(包括import进来的文件)的DOM，并行扫描component-scan的每个包；
+ * Bean定义仍然在当前线程里按原顺序注册，注册时直接使用预加载的结果，所以Bean名称、别名和覆盖关系都和串行加载一致。
+ * 预加载失败时不做处理，注册时会重新串行解析，抛出和串行加载一样的异常。
+ * <p>
+ * Created by xuan on 17/9/12.
+ */
+public class ParallelXmlBeanDefinitionReader extends XmlBeanDefinitionReader {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelXmlBeanDefinitionReader.class);
+
+    private static final String CONTEXT_NAMESPACE_URI = "http://www.springframework.org/schema/context";
+    private static final String COMPONENT_SCAN_ELEMENT = "component-scan";
+
+    /**
+     * 预加载线程池大小
+     */
+    private final int poolSize;
+    /**
+     * 已经提交预加载的配置文件，用来去重
+     */
+    private final Set<Resource> preloadedResources = Collections.newSetFromMap(new ConcurrentHashMap<Resource, Boolean>());
+    /**
+     * 预加载的DOM，注册时取出一次后失效
+     */
+    private final ConcurrentHashMap<Resource, Future<Document>> preloadedDocuments = new ConcurrentHashMap<>();
+    /**
+     * 注册时命中预加载DOM的次数
+     */
+    private final AtomicInteger preloadedDocumentHits = new AtomicInteger();
+    /**
+     * 支持预扫描的component-scan解析器
+     */
+    private final PrescanComponentScanBeanDefinitionParser componentScanParser = new PrescanComponentScanBeanDefinitionParser();
+
+    /**
+     * 构造方法
+     *
+     * @param registry 注册Bean定义的BeanFactory
+     * @param poolSize 预加载线程池大小
+     */
+    public ParallelXmlBeanDefinitionReader(BeanDefinitionRegistry registry, int poolSize) {
+        super(registry);
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * 先并行预加载所有配置文件，再按顺序注册Bean定义
+     */
+    @Override
+    public int loadBeanDefinitions(String... locations) throws BeanDefinitionStoreException {
+        if (!(getResourceLoader() instanceof ResourcePatternResolver)) {
+            return super.loadBeanDefinitions(locations);
+        }
+        long start = System.currentTimeMillis();
+        ExecutorService threadPool = Executors.newFixedThreadPool(poolSize);
+        try {
+            for (String location : locations) {
+                for (Resource resource : resolveResources(location)) {
+                    preload(resource, threadPool);
+                }
+            }
+            int count = super.loadBeanDefinitions(locations);
+
+            log.warn("ParallelLoadBeanDefinitions finish...count:" + count +
+                    ", documents:" + preloadedDocumentHits.get() + "/" + preloadedResources.size() +
+                    ", packages:" + componentScanParser.getPrescanHits() + "/" + componentScanParser.getPrescanCount() +
+                    ", cost:" + (System.currentTimeMillis() - start));
+            if (preloadedResources.size() <= 1 && componentScanParser.getPrescanCount() <= 1) {
+                log.warn("only one config resource and no more than one scanned package, parallel loading brings no speed-up");
+            }
+            return count;
+        } finally {
+            threadPool.shutdownNow();
+            preloadedDocuments.clear();
+            componentScanParser.clear();
+        }
+    }
+
+    /**
+     * 优先使用预加载的DOM
+     */
+    @Override
+    protected Document doLoadDocument(InputSource inputSource, Resource resource) throws Exception {
+        Future<Document> document = preloadedDocuments.remove(resource);
+        if (document != null) {
+            try {
+                Document result = document.get();
+                preloadedDocumentHits.incrementAndGet();
+                return result;
+            } catch (ExecutionException e) {
+                log.debug("preload " + resource + " failed, parse it again", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return super.doLoadDocument(inputSource, resource);
+    }
+
+    /**
+     * 和父类一样检测校验模式，但每次用新的XmlValidationModeDetector：父类共用的检测器有状态(是否在注释里)，多线程检测会互相干扰
+     */
+    @Override
+    protected int detectValidationMode(Resource resource) {
+        if (resource.isOpen()) {
+            throw new BeanDefinitionStoreException(
+                    "Passed-in Resource [" + resource + "] contains an open stream: " +
+                            "cannot determine validation mode automatically. Either pass in a Resource " +
+                            "that is able to create fresh streams, or explicitly specify the validationMode " +
+                            "on your XmlBeanDefinitionReader instance.");
+        }
+
+        InputStream inputStream;
+        try {
+            inputStream = resource.getInputStream();
+        } catch (IOException e) {
+            throw new BeanDefinitionStoreException(
+                    "Unable to determine validation mode for [" + resource + "]: cannot open InputStream. " +
+                            "Did you attempt to load directly from a SAX InputSource without specifying the " +
+                            "validationMode on your XmlBeanDefinitionReader instance?", e);
+        }
+
+        try {
+            return new XmlValidationModeDetector().detectValidationMode(inputStream);
+        } catch (IOException e) {
+            throw new BeanDefinitionStoreException("Unable to determine validation mode for [" +
+                    resource + "]: an error occurred whilst reading from the InputStream.", e);
+        }
+    }
+
+    /**
+     * 把context命名空间的component-scan换成支持预扫描的解析器
+     */
+    @Override
+    protected NamespaceHandlerResolver createDefaultNamespaceHandlerResolver() {
+        final NamespaceHandlerResolver namespaceHandlerResolver = super.createDefaultNamespaceHandlerResolver();
+        final NamespaceHandler contextNamespaceHandler = new ContextNamespaceHandler() {
+            @Override
+            public void init() {
+                super.init();
+                registerBeanDefinitionParser(COMPONENT_SCAN_ELEMENT, componentScanParser);
+            }
+        };
+        contextNamespaceHandler.init();
+        return new NamespaceHandlerResolver() {
+            @Override
+            public NamespaceHandler resolve(String namespaceUri) {
+                NamespaceHandler namespaceHandler = namespaceHandlerResolver.resolve(namespaceUri);
+                if (namespaceHandler != null && namespaceHandler.getClass() == ContextNamespaceHandler.class) {
+                    return contextNamespaceHandler;
+                }
+                return namespaceHandler;
+            }
+        };
+    }
+
+    private Resource[] resolveResources(String location) {
+        try {
+            return ((ResourcePatternResolver) getResourceLoader()).getResources(location);
+        } catch (Exception e) {
+            log.debug("resolve " + location + " failed, skip preload", e);
+            return new Resource[0];
+        }
+    }
+
+    /**
+     * 提交一个配置文件的预加载任务，同一个文件只提交一次
+     */
+    private void preload(final Resource resource, final ExecutorService threadPool) {
+        if (!preloadedResources.add(resource)) {
+            return;
+        }
+        try {
+            preloadedDocuments.put(resource, threadPool.submit(new Callable<Document>() {
+                @Override
+                public Document call() throws Exception {
+                    return preloadDocument(resource, threadPool);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            log.debug("preload " + resource + " rejected", e);
+        }
+    }
+
+    /**
+     * 解析DOM，并提交它import的文件和component-scan的包。DOM只在当前线程里访问，返回以后才交给注册线程
+     */
+    private Document preloadDocument(Resource resource, ExecutorService threadPool) throws Exception {
+        long start = System.currentTimeMillis();
+        Document document;
+        InputStream inputStream = resource.getInputStream();
+        try {
+            document = super.doLoadDocument(new InputSource(inputStream), resource);
+        } finally {
+            inputStream.close();
+        }
+
+        List<Resource> importedResources = new ArrayList<>();
+        collectImportedResources(document.getDocumentElement(), resource, importedResources);
+        for (Resource importedResource : importedResources) {
+            preload(importedResource, threadPool);
+        }
+
+        NodeList componentScans = document.getElementsByTagNameNS(CONTEXT_NAMESPACE_URI, COMPONENT_SCAN_ELEMENT);
+        if (componentScans.getLength() > 0) {
+            XmlReaderContext readerContext = createPrescanReaderContext(resource);
+            for (int i = 0; i < componentScans.getLength(); i++) {
+                componentScanParser.prescan((Element) componentScans.item(i), readerContext, threadPool);
+            }
+        }
+        log.info("preload " + resource.getDescription() + " finish...cost:" + (System.currentTimeMillis() - start));
+        return document;
+    }
+
+    /**
+     * 预扫描用的readerContext，注册表是临时的，不会读到注册线程正在写入的BeanFactory
+     */
+    private XmlReaderContext createPrescanReaderContext(Resource resource) {
+        XmlBeanDefinitionReader prescanReader = new XmlBeanDefinitionReader(new SimpleBeanDefinitionRegistry());
+        prescanReader.setEnvironment(getEnvironment());
+        prescanReader.setResourceLoader(getResourceLoader());
+        prescanReader.setBeanClassLoader(getBeanClassLoader());
+        return new XmlReaderContext(resource, new FailFastProblemReporter(),
+                new EmptyReaderEventListener(), new NullSourceExtractor(), prescanReader, null);
+    }
+
+    /**
+     * 找出import的文件，解析路径的方式和DefaultBeanDefinitionDocumentReader一致
+     */
+    private void collectImportedResources(Element parent, Resource resource, List<Resource> importedResources) {
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (!(node instanceof Element) || !isDefaultNamespace(node)) {
+                continue;
+            }
+            Element element = (Element) node;
+            if (DefaultBeanDefinitionDocumentReader.IMPORT_ELEMENT.equals(element.getLocalName())) {
+                collectImportedResource(element, resource, importedResources);
+            } else if (DefaultBeanDefinitionDocumentReader.NESTED_BEANS_ELEMENT.equals(element.getLocalName())) {
+                collectImportedResources(element, resource, importedResources);
+            }
+        }
+    }
+
+    private void collectImportedResource(Element element, Resource resource, List<Resource> importedResources) {
+        String location = element.getAttribute(DefaultBeanDefinitionDocumentReader.RESOURCE_ATTRIBUTE);
+        if (!StringUtils.hasText(location)) {
+            return;
+        }
+        try {
+            location = getEnvironment().resolveRequiredPlaceholders(location);
+            boolean absoluteLocation = false;
+            try {
+                absoluteLocation = ResourcePatternUtils.isUrl(location) || ResourceUtils.toURI(location).isAbsolute();
+            } catch (URISyntaxException e) {
+                //和DefaultBeanDefinitionDocumentReader一样当作相对路径
+            }
+            if (absoluteLocation) {
+                Collections.addAll(importedResources, resolveResources(location));
+            } else {
+                Resource relativeResource = resource.createRelative(location);
+                if (relativeResource.exists()) {
+                    importedResources.add(relativeResource);
+                } else {
+                    String baseLocation = resource.getURL().toString();
+                    Collections.addAll(importedResources, resolveResources(StringUtils.applyRelativePath(baseLocation, location)));
+                }
+            }
+        } catch (Exception e) {
+            log.debug("resolve import " + location + " failed, skip preload", e);
+        }
+    }
+
+    private boolean isDefaultNamespace(Node node) {
+        String namespaceUri = node.getNamespaceURI();
+        return !StringUtils.hasLength(namespaceUri) || BeanDefinitionParserDelegate.BEANS_NAMESPACE_URI.equals(namespaceUri);
+    }
+
+    int getPreloadedDocumentHits() {
+        return preloadedDocumentHits.get();
+    }
+
+    int getPrescanHits() {
+        return componentScanParser.getPrescanHits();
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.xuan.asyncloader.context;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.xml.BeanDefinitionParserDelegate;
+import org.springframework.beans.factory.xml.ParserContext;
+import org.springframework.beans.factory.xml.XmlReaderContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ClassPathBeanDefinitionScanner;
+import org.springframework.context.annotation.ComponentScanBeanDefinitionParser;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Element;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 支持预扫描的component-scan解析器
+ * <p>
+ * 预加载时按component-scan节点的配置，为每个包单独在线程池里查找候选类；
+ * 注册时仍由父类完成命名、冲突检查和注册，只是查找候选类时直接使用预扫描结果。
+ * 预扫描使用临时注册表，不读注册线程正在写入的BeanFactory；包里只要有带@Conditional(包括@Profile)的类，
+ * 预扫描结果就作废，注册时重新扫描这个包，条件和串行加载一样在注册时判断。
+ * <p>
+ * Created by xuan on 17/9/12.
+ */
+class PrescanComponentScanBeanDefinitionParser extends ComponentScanBeanDefinitionParser {
+
+    private static final Logger log = LoggerFactory.getLogger(PrescanComponentScanBeanDefinitionParser.class);
+
+    private static final String BASE_PACKAGE_ATTRIBUTE = "base-package";
+
+    /**
+     * component-scan节点 -> (包名 -> 预扫描结果)，节点用引用比较
+     */
+    private final Map<Element, Map<String, Future<Set<BeanDefinition>>>> prescanned =
+            Collections.synchronizedMap(new IdentityHashMap<Element, Map<String, Future<Set<BeanDefinition>>>>());
+    /**
+     * 当前正在解析的component-scan节点的预扫描结果
+     */
+    private final ThreadLocal<Map<String, Future<Set<BeanDefinition>>>> currentPrescanned = new ThreadLocal<>();
+
+    private final AtomicInteger prescanCount = new AtomicInteger();
+    private final AtomicInteger prescanHits = new AtomicInteger();
+
+    /**
+     * 提交一个component-scan节点的预扫描任务，需要在访问这个DOM的线程里调用
+     *
+     * @param element       component-scan节点
+     * @param readerContext 所在配置文件的readerContext
+     * @param threadPool    执行扫描的线程池
+     */
+    void prescan(Element element, XmlReaderContext readerContext, ExecutorService threadPool) {
+        try {
+            ParserContext parserContext = new ParserContext(readerContext, new BeanDefinitionParserDelegate(readerContext));
+            String basePackage = readerContext.getEnvironment().resolvePlaceholders(element.getAttribute(BASE_PACKAGE_ATTRIBUTE));
+            String[] basePackages = StringUtils.tokenizeToStringArray(basePackage,
+                    ConfigurableApplicationContext.CONFIG_LOCATION_DELIMITERS);
+
+            Map<String, Future<Set<BeanDefinition>>> results = new HashMap<>();
+            for (final String pkg : basePackages) {
+                //每个包一个扫描器，扫描线程不访问DOM
+                final PrescanClassPathBeanDefinitionScanner scanner =
+                        (PrescanClassPathBeanDefinitionScanner) configureScanner(parserContext, element);
+                results.put(pkg, threadPool.submit(new Callable<Set<BeanDefinition>>() {
+                    @Override
+                    public Set<BeanDefinition> call() throws Exception {
+                        Set<BeanDefinition> candidates = scanner.findCandidateComponents(pkg);
+                        //有条件的类在注册时重新判断
+                        return scanner.hasConditionalComponent() ? null : candidates;
+                    }
+                }));
+            }
+            prescanned.put(element, results);
+            prescanCount.addAndGet(results.size());
+        } catch (Exception e) {
+            log.debug("prescan " + element.getAttribute(BASE_PACKAGE_ATTRIBUTE) + " failed, skip prescan", e);
+        }
+    }
+
+    @Override
+    public BeanDefinition parse(Element element, ParserContext parserContext) {
+        currentPrescanned.set(prescanned.remove(element));
+        try {
+            return super.parse(element, parserContext);
+        } finally {
+            currentPrescanned.remove();
+        }
+    }
+
+    @Override
+    protected ClassPathBeanDefinitionScanner createScanner(XmlReaderContext readerContext, boolean useDefaultFilters) {
+        return new PrescanClassPathBeanDefinitionScanner(readerContext.getRegistry(), useDefaultFilters);
+    }
+
+    /**
+     * 取出预扫描结果，取出一次后失效；没有结果或者包里有带@Conditional的类时返回null，由扫描器重新扫描
+     */
+    private Set<BeanDefinition> takePrescanned(String basePackage) {
+        Map<String, Future<Set<BeanDefinition>>> results = currentPrescanned.get();
+        if (results == null) {
+            return null;
+        }
+        Future<Set<BeanDefinition>> result = results.remove(basePackage);
+        if (result == null) {
+            return null;
+        }
+        try {
+            Set<BeanDefinition> candidates = result.get();
+            if (candidates != null) {
+                prescanHits.incrementAndGet();
+            }
+            return candidates;
+        } catch (ExecutionException e) {
+            log.debug("prescan " + basePackage + " failed, scan it again", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * 清掉没有用到的预扫描结果
+     */
+    void clear() {
+        prescanned.clear();
+    }
+
+    int getPrescanCount() {
+        return prescanCount.get();
+    }
+
+    int getPrescanHits() {
+        return prescanHits.get();
+    }
+
+    /**
+     * 注册时优先使用预扫描结果；预扫描时记录是否遇到带@Conditional的类
+     */
+    private class PrescanClassPathBeanDefinitionScanner extends ClassPathBeanDefinitionScanner {
+
+        private boolean conditionalComponent = false;
+
+        PrescanClassPathBeanDefinitionScanner(BeanDefinitionRegistry registry, boolean useDefaultFilters) {
+            super(registry, useDefaultFilters);
+        }
+
+        @Override
+        public Set<BeanDefinition> findCandidateComponents(String basePackage) {
+            Set<BeanDefinition> candidates = takePrescanned(basePackage);
+            return candidates != null ? candidates : super.findCandidateComponents(basePackage);
+        }
+
+        @Override
+        protected boolean isCandidateComponent(MetadataReader metadataReader) throws IOException {
+            if (metadataReader.getAnnotationMetadata().isAnnotated(Conditional.class.getName())) {
+                conditionalComponent = true;
+            }
+            return super.isCandidateComponent(metadataReader);
+        }
+
+        boolean hasConditionalComponent() {
+            return conditionalComponent;
+        }
+    }
+
+}
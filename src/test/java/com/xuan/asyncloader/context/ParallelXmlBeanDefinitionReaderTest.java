@@ -0,0 +1,139 @@
+package com.xuan.asyncloader.context;
+
+import com.xuan.asyncloader.testbean.Bean1;
+import com.xuan.asyncloader.testbean.Bean2;
+import com.xuan.asyncloader.testbean.Bean3;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 并行加载和串行加载的结果必须完全一致
+ * <p>
+ * Created by xuan on 17/9/12.
+ */
+public class ParallelXmlBeanDefinitionReaderTest {
+
+    private static final String[] FLAT_LOCATIONS = new String[]{
+            "classpath:parallel/a.xml", "classpath:parallel/b.xml", "classpath:parallel/c.xml"};
+
+    @Test
+    public void testImportedResources() {
+        ParallelXmlBeanDefinitionReader reader = assertSameAsSerial("classpath:parallel/root.xml");
+        assertEquals(4, reader.getPreloadedDocumentHits());
+        //scan2包里有带@Conditional的类，注册时重新扫描
+        assertEquals(3, reader.getPrescanHits());
+    }
+
+    @Test
+    public void testFlatResources() {
+        ParallelXmlBeanDefinitionReader reader = assertSameAsSerial(FLAT_LOCATIONS);
+        assertEquals(3, reader.getPreloadedDocumentHits());
+        //scan2包里有带@Conditional的类，注册时重新扫描
+        assertEquals(3, reader.getPrescanHits());
+    }
+
+    /**
+     * DTD和XSD配置文件头部都有多行注释，并行预加载时校验模式检测不能互相影响
+     */
+    @Test
+    public void testValidationModeDetection() {
+        for (int i = 0; i < 10; i++) {
+            ParallelXmlBeanDefinitionReader reader = assertSameAsSerial("classpath:parallel/headers.xml");
+            assertEquals(9, reader.getPreloadedDocumentHits());
+        }
+    }
+
+    /**
+     * 多个线程同时检测带注释头的DTD和XSD配置文件
+     */
+    @Test
+    public void testConcurrentValidationModeDetection() throws Exception {
+        final ParallelXmlBeanDefinitionReader reader = new ParallelXmlBeanDefinitionReader(new DefaultListableBeanFactory(), 4);
+        ExecutorService threadPool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> taskList = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final boolean dtd = i % 2 == 0;
+                final Resource resource = new ClassPathResource("parallel/header/" + (dtd ? "dtd" : "xsd") + (i / 2) + ".xml");
+                final int expectedMode = dtd ? XmlBeanDefinitionReader.VALIDATION_DTD : XmlBeanDefinitionReader.VALIDATION_XSD;
+                taskList.add(threadPool.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        for (int j = 0; j < 500; j++) {
+                            if (reader.detectValidationMode(resource) != expectedMode) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> task : taskList) {
+                assertTrue(task.get());
+            }
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testOverrideSemantics() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        new ParallelXmlBeanDefinitionReader(beanFactory, 4).loadBeanDefinitions(FLAT_LOCATIONS);
+
+        //匿名Bean跨文件连续编号
+        assertEquals(Bean1.class.getName(), beanFactory.getBeanDefinition(Bean1.class.getName() + "#2").getBeanClassName());
+        //后加载的id覆盖先加载的
+        assertEquals(Bean3.class.getName(), beanFactory.getBeanDefinition("plain").getBeanClassName());
+        assertEquals(Bean3.class.getName(), beanFactory.getBeanDefinition("shared").getBeanClassName());
+        //类名已经被id占用时，匿名Bean不注册类名别名
+        assertEquals(Bean2.class.getName(), beanFactory.getBeanDefinition(Bean2.class.getName()).getBeanClassName());
+        assertFalse(beanFactory.isAlias(Bean2.class.getName()));
+        //条件在注册时判断，能看到a.xml注册的plain
+        assertTrue(beanFactory.containsBeanDefinition("conditionalBean"));
+        //被排除的类不会注册
+        assertFalse(beanFactory.containsBeanDefinition("excludedBean"));
+    }
+
+    /**
+     * 分别串行和并行加载，比较Bean定义名称、顺序、别名和定义内容(包括引用的Bean名称)
+     */
+    private ParallelXmlBeanDefinitionReader assertSameAsSerial(String... locations) {
+        DefaultListableBeanFactory serialBeanFactory = new DefaultListableBeanFactory();
+        int serialCount = new XmlBeanDefinitionReader(serialBeanFactory).loadBeanDefinitions(locations);
+
+        DefaultListableBeanFactory parallelBeanFactory = new DefaultListableBeanFactory();
+        ParallelXmlBeanDefinitionReader reader = new ParallelXmlBeanDefinitionReader(parallelBeanFactory, 4);
+        int parallelCount = reader.loadBeanDefinitions(locations);
+
+        assertEquals(serialCount, parallelCount);
+        String[] beanNames = serialBeanFactory.getBeanDefinitionNames();
+        assertArrayEquals(beanNames, parallelBeanFactory.getBeanDefinitionNames());
+        for (String beanName : beanNames) {
+            String[] serialAliases = serialBeanFactory.getAliases(beanName);
+            String[] parallelAliases = parallelBeanFactory.getAliases(beanName);
+            Arrays.sort(serialAliases);
+            Arrays.sort(parallelAliases);
+            assertArrayEquals(beanName, serialAliases, parallelAliases);
+            assertEquals(beanName, serialBeanFactory.getBeanDefinition(beanName), parallelBeanFactory.getBeanDefinition(beanName));
+        }
+        return reader;
+    }
+
+}
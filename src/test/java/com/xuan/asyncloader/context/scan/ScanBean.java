@@ -0,0 +1,12 @@
+package com.xuan.asyncloader.context.scan;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 被扫描的Bean
+ * <p>
+ * Created by xuan on 17/9/12.
+ */
+@Component
+public class ScanBean {
+}
@@ -0,0 +1,12 @@
+package com.xuan.asyncloader.context.scan;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 和xml里的id重名的扫描Bean
+ * <p>
+ * Created by xuan on 17/9/12.
+ */
+@Component("shared")
+public class SharedComponent {
+}
@@ -0,0 +1,14 @@
+package com.xuan.asyncloader.context.scan2;
+
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Component;
+
+/**
+ * 只有容器里已经有plain时才注册的扫描Bean
+ * <p>
+ * Created by xuan on 17/9/12.
+ */
+@Component
+@Conditional(PlainDefinedCondition.class)
+public class ConditionalBean {
+}
@@ -0,0 +1,12 @@
+package com.xuan.asyncloader.context.scan2;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 被exclude-filter排除的Bean
+ * <p>
+ * Created by xuan on 17/9/12.
+ */
+@Component
+public class ExcludedBean {
+}
@@ -0,0 +1,12 @@
+package com.xuan.asyncloader.context.scan2;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * 被扫描的Bean
+ * <p>
+ * Created by xuan on 17/9/12.
+ */
+@Service
+public class OtherScanBean {
+}
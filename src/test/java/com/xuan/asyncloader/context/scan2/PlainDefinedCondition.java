@@ -0,0 +1,19 @@
+package com.xuan.asyncloader.context.scan2;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * 判断注册表里是否已经有plain，依赖之前配置文件的注册结果
+ * <p>
+ * Created by xuan on 17/9/12.
+ */
+public class PlainDefinedCondition implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return context.getRegistry().containsBeanDefinition("plain");
+    }
+
+}